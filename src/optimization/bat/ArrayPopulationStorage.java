@@ -0,0 +1,144 @@
+package optimization.bat;
+
+/**
+ * On-heap {@link PopulationStorage} that keeps every matrix in one flat, row-major array.
+ */
+public class ArrayPopulationStorage implements PopulationStorage {
+
+    private final int populationSize;
+    private final int dimension;
+    private final double[] positions;
+    private final double[] velocities;
+    private final double[] candidates;
+    private final double[] frequency;
+    private final double[] fitness;
+    private final double[] loudness;
+    private final double[] pulseRate;
+
+    public ArrayPopulationStorage(int populationSize, int dimension) {
+
+        if ((long) populationSize * dimension > Integer.MAX_VALUE - 8) {
+
+            throw new IllegalArgumentException("Population too large for on-heap storage: " + populationSize +
+                    " x " + dimension);
+        }
+
+        this.populationSize = populationSize;
+        this.dimension = dimension;
+        this.positions = new double[populationSize * dimension];
+        this.velocities = new double[populationSize * dimension];
+        this.candidates = new double[populationSize * dimension];
+        this.frequency = new double[populationSize];
+        this.fitness = new double[populationSize];
+        this.loudness = new double[populationSize];
+        this.pulseRate = new double[populationSize];
+    }
+
+    @Override
+    public int getPopulationSize() {
+
+        return populationSize;
+    }
+
+    @Override
+    public int getDimension() {
+
+        return dimension;
+    }
+
+    @Override
+    public double getPosition(int bat, int d) {
+
+        return positions[bat * dimension + d];
+    }
+
+    @Override
+    public void setPosition(int bat, int d, double value) {
+
+        positions[bat * dimension + d] = value;
+    }
+
+    @Override
+    public double getVelocity(int bat, int d) {
+
+        return velocities[bat * dimension + d];
+    }
+
+    @Override
+    public void setVelocity(int bat, int d, double value) {
+
+        velocities[bat * dimension + d] = value;
+    }
+
+    @Override
+    public double getCandidate(int bat, int d) {
+
+        return candidates[bat * dimension + d];
+    }
+
+    @Override
+    public void setCandidate(int bat, int d, double value) {
+
+        candidates[bat * dimension + d] = value;
+    }
+
+    @Override
+    public double getFrequency(int bat) {
+
+        return frequency[bat];
+    }
+
+    @Override
+    public void setFrequency(int bat, double value) {
+
+        frequency[bat] = value;
+    }
+
+    @Override
+    public double getFitness(int bat) {
+
+        return fitness[bat];
+    }
+
+    @Override
+    public void setFitness(int bat, double value) {
+
+        fitness[bat] = value;
+    }
+
+    @Override
+    public double getLoudness(int bat) {
+
+        return loudness[bat];
+    }
+
+    @Override
+    public void setLoudness(int bat, double value) {
+
+        loudness[bat] = value;
+    }
+
+    @Override
+    public double getPulseRate(int bat) {
+
+        return pulseRate[bat];
+    }
+
+    @Override
+    public void setPulseRate(int bat, double value) {
+
+        pulseRate[bat] = value;
+    }
+
+    @Override
+    public void acceptCandidate(int bat) {
+
+        System.arraycopy(candidates, bat * dimension, positions, bat * dimension, dimension);
+    }
+
+    @Override
+    public void copyPosition(int bat, double[] target) {
+
+        System.arraycopy(positions, bat * dimension, target, 0, dimension);
+    }
+}
@@ -1,19 +1,28 @@
 package optimization.bat;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.text.DecimalFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntToDoubleFunction;
 
 public class BatAlgorithm {
 
     private FunctionDefinition function;
-    private double[][] batSolutions;        // Population x Solution
-    private double[][] velocities;        // Velocities
-    private double[] frequency;        // Frequency -> frequencyMin to frequencyMin
-    private double[] fitness;            // Fitness (N)
-    private double[] pulseRate;            // Pulse Rate
+    private final PopulationStorage storage; // Positions, velocities, frequency, fitness, loudness and pulse rate
     private final double pulseRateInitial; // Initial pulse rate for every bat
-    private double[] loudness;            // Loudness
+    private final DoubleAdder totalLoudness = new DoubleAdder(); // Sum of loudness over the population
     private double[] lowerBounds;        // Lower bound
     private double[] upperBounds;        // Upper bound
     private double fitnessMin;        // fitness score of best solution
@@ -22,26 +31,72 @@ public class BatAlgorithm {
     private final int maxNumOfIterations;        // Number of iterations
     private final double frequencyMin = 0.0; // Minimum frequency
     private final double frequencyMax = 2.0; // Maximum frequency
-    private final int dimension = 2; // dimension of the problem
+    private final int dimension; // dimension of the problem
     private final double alpha = 0.9; // cooling factor for loudness and pulse rate
-    private final Random rand = new Random();
+    private final Random rand;
+    private boolean verbose = true; // print the final fitness after every run
+    private volatile BestSolution bestSnapshot; // Shared best of the free-running mode
+    private final LongAdder publishCount = new LongAdder(); // Improvements offered to bestSnapshot
+    private final LongAdder contentionCount = new LongAdder(); // Failed compare-and-sets on bestSnapshot
+
+    private static final VarHandle BEST_SNAPSHOT;
+
+    static {
+
+        try {
+
+            BEST_SNAPSHOT = MethodHandles.lookup().findVarHandle(BatAlgorithm.class, "bestSnapshot",
+                    BestSolution.class);
+
+        } catch (ReflectiveOperationException e) {
+
+            throw new ExceptionInInitializerError(e);
+        }
+    }
 
     public BatAlgorithm(int populationSize, int maxNumOfIterations, double loudnessInitial, double pulseRateInitial,
                         FunctionDefinition function) {
 
-        this.populationSize = populationSize;
+        this(maxNumOfIterations, loudnessInitial, pulseRateInitial, function,
+                new ArrayPopulationStorage(populationSize, 2));
+    }
+
+    /**
+     * Runs on the given storage; population size and dimension are taken from it. The caller keeps ownership
+     * of the storage and is responsible for closing it.
+     */
+    public BatAlgorithm(int maxNumOfIterations, double loudnessInitial, double pulseRateInitial,
+                        FunctionDefinition function, PopulationStorage storage) {
+
+        this(maxNumOfIterations, loudnessInitial, pulseRateInitial, function, storage, new Random());
+    }
+
+    /**
+     * Same as above, but every random draw of the serial and sparse modes comes from {@code seed}, so runs are
+     * repeatable. The free-running mode uses per-thread generators and is never repeatable.
+     */
+    public BatAlgorithm(int maxNumOfIterations, double loudnessInitial, double pulseRateInitial,
+                        FunctionDefinition function, PopulationStorage storage, long seed) {
+
+        this(maxNumOfIterations, loudnessInitial, pulseRateInitial, function, storage, new Random(seed));
+    }
+
+    private BatAlgorithm(int maxNumOfIterations, double loudnessInitial, double pulseRateInitial,
+                         FunctionDefinition function, PopulationStorage storage, Random rand) {
+
+        if (storage.getPopulationSize() < 1) {
+
+            throw new IllegalArgumentException("Population must have at least one bat: " +
+                    storage.getPopulationSize());
+        }
+
+        this.rand = rand;
+        this.populationSize = storage.getPopulationSize();
+        this.dimension = storage.getDimension();
         this.maxNumOfIterations = maxNumOfIterations;
-        this.loudness = new double[populationSize];
-        this.pulseRate = new double[populationSize];
         this.pulseRateInitial = pulseRateInitial;
         this.function = function;
-
-        this.batSolutions = new double[populationSize][dimension];
-        this.velocities = new double[populationSize][dimension];
-        this.frequency = new double[populationSize];
-        this.fitness = new double[populationSize];
-        Arrays.fill(loudness, loudnessInitial);
-        Arrays.fill(pulseRate, pulseRateInitial);
+        this.storage = storage;
 
         // Initialize bounds
         this.lowerBounds = new double[dimension];
@@ -58,68 +113,128 @@ public class BatAlgorithm {
             this.upperBounds[i] = function.getRange().getMax();
         }
 
-        // Initialize Frequency and Velocity
+        // Initialize Loudness, Pulse Rate, Frequency, Velocity and Positions
         for (int i = 0; i < populationSize; i++) {
 
-            this.frequency[i] = 0.0;
-        }
-        for (int i = 0; i < populationSize; i++) {
+            storage.setLoudness(i, loudnessInitial);
+            storage.setPulseRate(i, pulseRateInitial);
+            storage.setFrequency(i, 0.0);
 
             for (int j = 0; j < dimension; j++) {
 
-                this.velocities[i][j] = 0.0;
+                storage.setVelocity(i, j, 0.0);
+                storage.setPosition(i, j, lowerBounds[j] + (upperBounds[j] - lowerBounds[j]) * rand.nextDouble());
             }
+
+            storage.setFitness(i, benchmarkFunction(i));
         }
 
-        // Initialize Positions
-        for (int i = 0; i < populationSize; i++) {
+        // Initial best solution
+        int fmin_i = storage.bestIndex();
 
-            for (int j = 0; j < dimension; j++) {
+        this.fitnessMin = storage.getFitness(fmin_i);
+        this.best = new double[dimension];
+        storage.copyPosition(fmin_i, best);
+    }
 
-                this.batSolutions[i][j] = lowerBounds[j] + (upperBounds[j] - lowerBounds[j]) * rand.nextDouble();
-            }
+    private double benchmarkFunction(int bat) {
 
-            this.fitness[i] = benchmarkFunction(batSolutions[i]);
+        Double[] xValues = new Double[dimension];
+
+        for (int j = 0; j < dimension; j++) {
+
+            xValues[j] = storage.getPosition(bat, j);
         }
 
-        // Initial best solution
-        int fmin_i = 0;
+        return function.getFunction().apply(xValues);
+    }
 
-        for (int i = 0; i < populationSize; i++) {
+    private double benchmarkCandidate(int bat) {
 
-            if (fitness[i] < fitness[fmin_i]) {
+        Double[] xValues = new Double[dimension];
 
-                fmin_i = i;
-            }
+        for (int j = 0; j < dimension; j++) {
+
+            xValues[j] = storage.getCandidate(bat, j);
         }
 
-        this.fitnessMin = fitness[fmin_i];
-        this.best = batSolutions[fmin_i];
+        return function.getFunction().apply(xValues);
     }
 
-    private double benchmarkFunction(double[] xValues) {
+    private void boundaryCheck(int bat) {
+
+        for (int i = 0; i < dimension; i++) {
 
-        return function.getFunction().apply(Arrays.stream(xValues).boxed().toArray(Double[]::new));
+            double x = storage.getCandidate(bat, i);
+
+            if (x < lowerBounds[i]) {
+
+                storage.setCandidate(bat, i, lowerBounds[i]);
+
+            } else if (x > upperBounds[i]) {
+
+                storage.setCandidate(bat, i, lowerBounds[i]);
+            }
+        }
     }
 
-    private double[] boundaryCheck(double[] xValues) {
+    /**
+     * Moves bat {@code i} around {@code best} and keeps the candidate if it is accepted.
+     *
+     * @return fitness of the candidate, whether or not it was accepted
+     */
+    private double moveBat(int i, int t, Random random, double[] best) {
 
-        double[] tempXValues = new double[dimension];
-        System.arraycopy(xValues, 0, tempXValues, 0, dimension);
+        // Update frequency
+        double frequency = frequencyMin + (frequencyMin - frequencyMax) * random.nextDouble();
+        storage.setFrequency(i, frequency);
+        // Update velocities and position of every dimension
+        for (int j = 0; j < dimension; j++) {
 
-        for (int i = 0; i < dimension; i++) {
+            double position = storage.getPosition(i, j);
+            double velocity = storage.getVelocity(i, j) + (position - best[j]) * frequency;
+
+            storage.setVelocity(i, j, velocity);
+            storage.setCandidate(i, j, position + velocity);
+        }
 
-            if (tempXValues[i] < lowerBounds[i]) {
+        // fix bounds
+        boundaryCheck(i);
 
-                tempXValues[i] = lowerBounds[i];
+        // if bat's pulse rate is not greater than randomized pulse;
+        // move the bat around the contemporary best solution.
+        if (random.nextDouble() > storage.getPulseRate(i)) {
+
+            double avgLoudness = totalLoudness.sum() / populationSize;
+
+            for (int j = 0; j < dimension; j++) {
 
-            } else if (tempXValues[i] > upperBounds[i]) {
+                double r = random.nextDouble(-1, 1);
 
-                tempXValues[i] = lowerBounds[i];
+                storage.setCandidate(i, j, best[j] + r * avgLoudness);
             }
         }
 
-        return tempXValues;
+        // fix bounds
+        boundaryCheck(i);
+
+        // Evaluate new solutions
+        double newFitness = benchmarkCandidate(i);
+        double loudness = storage.getLoudness(i);
+
+        // Update the solution if it improves and is not too loud
+        if (newFitness <= storage.getFitness(i) && random.nextDouble() < loudness) {
+
+            storage.acceptCandidate(i);
+            storage.setFitness(i, newFitness);
+            // improvement decreases loudness
+            storage.setLoudness(i, alpha * loudness);
+            totalLoudness.add(-(1 - alpha) * loudness);
+            // improvement increases pulse rate
+            storage.setPulseRate(i, storage.getPulseRate(i) + pulseRateInitial * (1 - Math.exp(-1 * alpha * t)));
+        }
+
+        return newFitness;
     }
 
     public double[] runAlgorithm() {
@@ -128,76 +243,362 @@ public class BatAlgorithm {
         double[] convergenceValues = new double[maxNumOfIterations + 1];
         convergenceValues[0] = this.fitnessMin;
 
-        double[][] solution = new double[populationSize][dimension];
-
         // iterate until max iteration count is reached
         for (int t = 0; t < maxNumOfIterations; t++) {
+
+            // re-sum loudness once per generation so the running total does not drift
+            totalLoudness.reset();
+            totalLoudness.add(storage.totalLoudness());
+
             // iterate bats
             for (int i = 0; i < populationSize; i++) {
 
-                // Update frequency
-                frequency[i] = frequencyMin + (frequencyMin - frequencyMax) * rand.nextDouble();
-                // Update velocities of every dimension
-                for (int j = 0; j < dimension; j++) {
+                double newFitness = moveBat(i, t, rand, best);
+
+                // check if this is the new best solution
+                if (newFitness <= fitnessMin) {
 
-                    velocities[i][j] = velocities[i][j] + (batSolutions[i][j] - best[j]) * frequency[i];
+                    storage.copyPosition(i, best);
+                    fitnessMin = newFitness;
                 }
-                // Update position
-                for (int j = 0; j < dimension; j++) {
+            }
+
+            convergenceValues[t + 1] = fitnessMin;
+        }
+
+        printResult();
+
+        return convergenceValues;
+    }
+
+    /**
+     * Free-running variant of {@link #runAlgorithm()}: the population is split into {@code threadCount}
+     * contiguous slices and each thread iterates its own bats without waiting for the others. The global best is
+     * read from and published to a shared immutable snapshot with compare-and-set, so readers never block and
+     * writers only race when they hold a genuine improvement.
+     * <p>
+     * Entry {@code t} of the returned array is the best fitness once every thread has finished {@code t}
+     * iterations.
+     */
+    public double[] runAlgorithm(int threadCount) {
+
+        threadCount = Math.max(1, Math.min(threadCount, populationSize));
+
+        totalLoudness.reset();
+        totalLoudness.add(storage.totalLoudness());
+        bestSnapshot = new BestSolution(fitnessMin, best.clone());
+        publishCount.reset();
+        contentionCount.reset();
+
+        double[][] threadConvergence = new double[threadCount][];
+        List<Callable<Void>> slices = new ArrayList<>();
+
+        for (int k = 0; k < threadCount; k++) {
+
+            final int slice = k;
+            final int from = (int) ((long) populationSize * k / threadCount);
+            final int to = (int) ((long) populationSize * (k + 1) / threadCount);
+
+            slices.add(() -> {
+
+                threadConvergence[slice] = runSlice(from, to);
+                return null;
+            });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+
+        try {
+
+            for (Future<Void> future : executor.invokeAll(slices)) {
+
+                future.get();
+            }
+
+        } catch (InterruptedException e) {
+
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while running bats", e);
+
+        } catch (ExecutionException e) {
+
+            throw new IllegalStateException("Bat thread failed", e.getCause());
+
+        } finally {
+
+            executor.shutdownNow();
+        }
+
+        BestSolution last = bestSnapshot;
+        fitnessMin = last.fitness;
+        best = last.position.clone();
+
+        // best fitness is monotone, so the lowest value any thread saw after iteration t is the latest one
+        double[] convergenceValues = new double[maxNumOfIterations + 1];
+        Arrays.fill(convergenceValues, Double.POSITIVE_INFINITY);
+
+        for (double[] values : threadConvergence) {
+
+            for (int t = 0; t < convergenceValues.length; t++) {
+
+                convergenceValues[t] = Math.min(convergenceValues[t], values[t]);
+            }
+        }
+
+        printResult();
 
-                    solution[i][j] = batSolutions[i][j] + velocities[i][j];
+        return convergenceValues;
+    }
+
+    private double[] runSlice(int from, int to) {
+
+        Random random = ThreadLocalRandom.current();
+        double[] convergenceValues = new double[maxNumOfIterations + 1];
+        convergenceValues[0] = bestSnapshot.fitness;
+
+        for (int t = 0; t < maxNumOfIterations; t++) {
+
+            for (int i = from; i < to; i++) {
+
+                BestSolution current = bestSnapshot;
+                moveBat(i, t, random, current.position);
+
+                // the stored fitness only changes when a move is accepted, so it always belongs to the stored
+                // position; the candidate's fitness may belong to a rejected move
+                double fitness = storage.getFitness(i);
+
+                if (fitness < current.fitness) {
+
+                    publishBest(i, fitness, current);
                 }
+            }
+
+            convergenceValues[t + 1] = bestSnapshot.fitness;
+        }
+
+        return convergenceValues;
+    }
+
+    private void publishBest(int bat, double newFitness, BestSolution current) {
+
+        double[] position = new double[dimension];
+        storage.copyPosition(bat, position);
+        BestSolution candidate = new BestSolution(newFitness, position);
+
+        publishCount.increment();
+
+        while (!BEST_SNAPSHOT.compareAndSet(this, current, candidate)) {
+
+            contentionCount.increment();
+            current = bestSnapshot;
+
+            if (newFitness >= current.fitness) {
+
+                return;
+            }
+        }
+    }
+
+    /**
+     * Coordinate-subset variant of {@link #runAlgorithm()}: every move changes only {@code coordinatesPerMove}
+     * randomly chosen coordinates of a bat, and fitness is updated from the cached terms of the function's
+     * {@link IncrementalObjective} in O(k) instead of being re-evaluated over all dimensions.
+     * <p>
+     * Moves are applied to the bat's position in place and undone if they are not accepted, so the candidate
+     * matrix of the storage is not used.
+     */
+    public double[] runSparseAlgorithm(int coordinatesPerMove) {
+
+        if (!function.isIncremental()) {
+
+            throw new IllegalStateException(function.getName() + " has no incremental form");
+        }
+
+        if ((long) populationSize * dimension > Integer.MAX_VALUE - 8) {
+
+            throw new IllegalArgumentException("Population too large for cached terms: " + populationSize +
+                    " x " + dimension);
+        }
+
+        if (coordinatesPerMove < 1) {
+
+            throw new IllegalArgumentException("At least one coordinate must move: " + coordinatesPerMove);
+        }
+
+        IncrementalObjective objective = function.getIncremental();
+        int k = Math.min(coordinatesPerMove, dimension);
+        double[] terms = new double[populationSize * dimension];
+
+        // cache the terms of every bat; fitness is re-based on them so later deltas stay consistent
+        for (int i = 0; i < populationSize; i++) {
+
+            final int bat = i;
+            storage.setFitness(i, objective.evaluate((j) -> storage.getPosition(bat, j), dimension, terms,
+                    i * dimension));
+        }
+
+        int fmin_i = storage.bestIndex();
+        fitnessMin = storage.getFitness(fmin_i);
+        storage.copyPosition(fmin_i, best);
+
+        // coordinates are drawn by a partial shuffle of this permutation, which never needs resetting
+        int[] permutation = new int[dimension];
+
+        for (int j = 0; j < dimension; j++) {
+
+            permutation[j] = j;
+        }
+
+        int[] changed = new int[k];
+        double[] oldValues = new double[k];
+        int[] undoTerms = new int[k * (objective.getCoupling() + 1)];
+        double[] undoValues = new double[undoTerms.length];
+
+        double[] convergenceValues = new double[maxNumOfIterations + 1];
+        convergenceValues[0] = this.fitnessMin;
+
+        for (int t = 0; t < maxNumOfIterations; t++) {
+
+            totalLoudness.reset();
+            totalLoudness.add(storage.totalLoudness());
+
+            for (int i = 0; i < populationSize; i++) {
 
-                // fix bounds
-                solution[i] = boundaryCheck(solution[i]);
+                final int bat = i;
+                final int from = i * dimension;
+                IntToDoubleFunction x = (j) -> storage.getPosition(bat, j);
 
-                // if bat's pulse rate is not greater than randomized pulse;
-                // move the bat around the contemporary best solution.
-                if (rand.nextDouble() > pulseRate[i]) {
+                double frequency = frequencyMin + (frequencyMin - frequencyMax) * rand.nextDouble();
+                storage.setFrequency(i, frequency);
 
-                    double avgLoudness = Arrays.stream(loudness).average().orElse(0);
+                boolean aroundBest = rand.nextDouble() > storage.getPulseRate(i);
+                double avgLoudness = aroundBest ? totalLoudness.sum() / populationSize : 0d;
+                double newFitness = storage.getFitness(i);
+                int undoCount = 0;
 
-                    for (int j = 0; j < dimension; j++) {
+                for (int c = 0; c < k; c++) {
 
-                        double r = rand.nextDouble(-1, 1);
+                    int swap = c + rand.nextInt(dimension - c);
+                    int j = permutation[swap];
+                    permutation[swap] = permutation[c];
+                    permutation[c] = j;
 
-                        solution[i][j] = best[j] + r * avgLoudness;
+                    double position = storage.getPosition(i, j);
+                    double velocity = storage.getVelocity(i, j) + (position - best[j]) * frequency;
+                    storage.setVelocity(i, j, velocity);
+
+                    double value = aroundBest ? best[j] + rand.nextDouble(-1, 1) * avgLoudness
+                            : position + velocity;
+
+                    // same clamping as boundaryCheck
+                    if (value < lowerBounds[j] || value > upperBounds[j]) {
+
+                        value = lowerBounds[j];
+                    }
+
+                    changed[c] = j;
+                    oldValues[c] = position;
+                    storage.setPosition(i, j, value);
+
+                    for (int term = objective.firstAffectedTerm(j); term <= j; term++) {
+
+                        double updated = objective.term(x, term, dimension);
+
+                        undoTerms[undoCount] = term;
+                        undoValues[undoCount++] = terms[from + term];
+                        newFitness += updated - terms[from + term];
+                        terms[from + term] = updated;
                     }
                 }
 
-                // fix bounds
-                solution[i] = boundaryCheck(solution[i]);
+                double loudness = storage.getLoudness(i);
+
+                // Keep the move if it improves and is not too loud, otherwise roll it back
+                if (newFitness <= storage.getFitness(i) && rand.nextDouble() < loudness) {
+
+                    storage.setFitness(i, newFitness);
+                    storage.setLoudness(i, alpha * loudness);
+                    totalLoudness.add(-(1 - alpha) * loudness);
+                    storage.setPulseRate(i, storage.getPulseRate(i) + pulseRateInitial * (1 - Math.exp(-1 * alpha * t)));
+
+                } else {
+
+                    for (int u = undoCount - 1; u >= 0; u--) {
 
-                // Evaluate new solutions
-                double newFitness = benchmarkFunction(solution[i]);
+                        terms[from + undoTerms[u]] = undoValues[u];
+                    }
 
-                // Update the solution if it improves and is not too loud
-                if (newFitness <= fitness[i] && rand.nextDouble() < loudness[i]) {
+                    for (int c = k - 1; c >= 0; c--) {
 
-                    batSolutions[i] = solution[i];
-                    fitness[i] = newFitness;
-                    // improvement decreases loudness
-                    loudness[i] = alpha * loudness[i];
-                    // improvement increases pulse rate
-                    pulseRate[i] += pulseRateInitial * (1 - Math.exp(-1 * alpha * t));
+                        storage.setPosition(i, changed[c], oldValues[c]);
+                    }
                 }
 
-                // check if this is the new best solution
-                if (newFitness <= fitnessMin) {
+                // check if this is the new best solution; the stored fitness only changes on an accepted move,
+                // so it always belongs to the stored position, unlike the fitness of a rolled-back move
+                if (storage.getFitness(i) <= fitnessMin) {
 
-                    best = batSolutions[i];
-                    fitnessMin = newFitness;
+                    storage.copyPosition(i, best);
+                    fitnessMin = storage.getFitness(i);
                 }
             }
 
             convergenceValues[t + 1] = fitnessMin;
         }
 
+        printResult();
+
+        return convergenceValues;
+    }
+
+    /**
+     * Number of improvements offered to the shared best during the last free-running run.
+     */
+    public long getPublishCount() {
+
+        return publishCount.sum();
+    }
+
+    /**
+     * Number of failed compare-and-set attempts on the shared best during the last free-running run.
+     */
+    public long getContentionCount() {
+
+        return contentionCount.sum();
+    }
+
+    public double getFitnessMin() {
+
+        return fitnessMin;
+    }
+
+    public void setVerbose(boolean verbose) {
+
+        this.verbose = verbose;
+    }
+
+    private void printResult() {
+
+        if (!verbose) {
+
+            return;
+        }
+
         DecimalFormat df = new DecimalFormat("#.####");
         System.out.println(function.getName() + " __ " +
                 "POP_SIZE: " + populationSize + " __ " +
                 "FITNESS_VALUE: " + df.format(fitnessMin));
+    }
 
-        return convergenceValues;
+    private static final class BestSolution {
+
+        private final double fitness;
+        private final double[] position;
+
+        private BestSolution(double fitness, double[] position) {
+
+            this.fitness = fitness;
+            this.position = position;
+        }
     }
 }
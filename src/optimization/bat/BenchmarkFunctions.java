@@ -363,6 +363,75 @@ public class BenchmarkFunctions {
 
     };
 
+    // Term-wise forms of the separable and neighbour-coupled functions above; term i matches the i-th summand.
+    // SUM_POWER has none: its terms |x|^(i + 2) span hundreds of orders of magnitude, so delta updates lose all
+    // precision and overflow to Infinity - Infinity at high dimensions.
+
+    private static final IncrementalObjective SPHERE_TERMS = new IncrementalObjective((x, i, n) ->
+            Math.pow(x.applyAsDouble(i), 2), 0);
+
+    private static final IncrementalObjective SUM_SQUARES_TERMS = new IncrementalObjective((x, i, n) ->
+            (i + 1) * Math.pow(x.applyAsDouble(i), 2), 0);
+
+    private static final IncrementalObjective STEP_TERMS = new IncrementalObjective((x, i, n) ->
+            Math.pow(Math.ceil(x.applyAsDouble(i) + 0.5d), 2), 0);
+
+    private static final IncrementalObjective ROSENBROCK_TERMS = new IncrementalObjective((x, i, n) -> {
+
+        if (i == n - 1) {
+
+            return 0d;
+        }
+
+        double xi = x.applyAsDouble(i);
+
+        return 100 * Math.pow((x.applyAsDouble(i + 1) - Math.pow(xi, 2)), 2) + Math.pow((xi - 1), 2);
+    }, 1);
+
+    private static final IncrementalObjective RASTRIGIN_TERMS = new IncrementalObjective((x, i, n) -> {
+
+        double xi = x.applyAsDouble(i);
+
+        return Math.pow(xi, 2) - 10 * Math.cos(2 * Math.PI * xi) + 10;
+    }, 0);
+
+    private static final IncrementalObjective SCHWEFEL_2_26_TERMS = new IncrementalObjective((x, i, n) -> {
+
+        double xi = x.applyAsDouble(i);
+
+        return -xi * Math.sin(Math.sqrt(Math.abs(xi)));
+    }, 0, (n) -> 418.98 * n);
+
+    private static final IncrementalObjective ALPINE_TERMS = new IncrementalObjective((x, i, n) -> {
+
+        double xi = x.applyAsDouble(i);
+
+        return Math.abs(xi * Math.sin(xi) + 0.1 * xi);
+    }, 0);
+
+    private static final IncrementalObjective LEVY_TERMS = new IncrementalObjective((x, i, n) -> {
+
+        double xi = x.applyAsDouble(i);
+        double total = 0d;
+
+        if (i < n - 1) {
+
+            total += Math.pow(xi - 1, 2) * (1 + Math.pow(Math.sin(3 * Math.PI * x.applyAsDouble(i + 1)), 2));
+        }
+
+        if (i == 0) {
+
+            total += Math.pow(Math.sin(3 * Math.PI * xi), 2);
+        }
+
+        if (i == n - 1) {
+
+            total += Math.abs(xi - 1) * (1 + Math.pow(Math.sin(3 * Math.PI * xi), 2));
+        }
+
+        return total;
+    }, 1);
+
     private static final ValueRange[] VALUE_RANGES = new ValueRange[]{new ValueRange(-100, 100), new ValueRange(-100,
             100), new ValueRange(-10, 10), new ValueRange(-10, 10), new ValueRange(-10, 10),
             new ValueRange(-100,
@@ -383,13 +452,18 @@ public class BenchmarkFunctions {
             "PENALIZED_1", "PENALIZED_2", "ALPINE", "LEVY",
             "WEIERSTRASS", "SCHAFFER"};
 
+    private static final IncrementalObjective[] INCREMENTAL_OBJECTIVES = new IncrementalObjective[]{SPHERE_TERMS,
+            null, SUM_SQUARES_TERMS, null, null, null, STEP_TERMS, null, null, ROSENBROCK_TERMS,
+            RASTRIGIN_TERMS, null, null, SCHWEFEL_2_26_TERMS, null, null, null, ALPINE_TERMS, LEVY_TERMS, null, null};
+
     private static final Supplier<List<FunctionDefinition>> FUNCTION_PROVIDER = () -> {
 
         List<FunctionDefinition> result = new ArrayList<>();
 
         for (int i = 0; i < VALUE_RANGES.length; i++) {
 
-            result.add(new FunctionDefinition(FUNCTION_NAMES[i], FUNCTIONS[i], VALUE_RANGES[i]));
+            result.add(new FunctionDefinition(FUNCTION_NAMES[i], FUNCTIONS[i], VALUE_RANGES[i],
+                    INCREMENTAL_OBJECTIVES[i]));
         }
 
         return result;
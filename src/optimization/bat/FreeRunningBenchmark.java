@@ -0,0 +1,82 @@
+package optimization.bat;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Measures how the free-running mode of {@link BatAlgorithm} scales with the thread count and how often
+ * threads collide on the shared best solution.
+ * <p>
+ * Usage: {@code FreeRunningBenchmark [populationSize] [dimension] [iterations]}
+ */
+public class FreeRunningBenchmark {
+
+    private static final int[] THREAD_COUNTS = new int[]{1, 8, 16, 32, 64};
+    private static final int REPEATS = 5;
+
+    public static void main(String[] args) {
+
+        int populationSize = args.length > 0 ? Integer.parseInt(args[0]) : 64_000;
+        int dimension = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+
+        FunctionDefinition fd = BenchmarkFunctions.FUNCTION_LIST.stream()
+                .filter(f -> f.getName().equals("RASTRIGIN"))
+                .findFirst()
+                .orElseThrow();
+
+        // warm up the JIT on every thread count, so the first timed row is not the only one paying for it
+        for (int threads : THREAD_COUNTS) {
+
+            create(fd, Math.max(1, populationSize / 8), dimension, iterations).runAlgorithm(threads);
+        }
+
+        System.out.printf("%n%-8s %-10s %-14s %-8s %-12s %-12s %-10s%n", "THREADS", "SECONDS", "EVALS/SEC",
+                "SPEEDUP", "PUBLISHES", "CAS_FAILS", "CONTENTION");
+
+        double baseline = 0;
+
+        for (int threads : THREAD_COUNTS) {
+
+            // each row reports the run with the median time out of REPEATS
+            double[] seconds = new double[REPEATS];
+            BatAlgorithm[] algorithms = new BatAlgorithm[REPEATS];
+            Integer[] order = new Integer[REPEATS];
+
+            for (int r = 0; r < REPEATS; r++) {
+
+                // initialization is serial, so only the free-running iterations are timed
+                algorithms[r] = create(fd, populationSize, dimension, iterations);
+
+                long start = System.nanoTime();
+                algorithms[r].runAlgorithm(threads);
+                seconds[r] = (System.nanoTime() - start) / 1e9;
+                order[r] = r;
+            }
+
+            Arrays.sort(order, Comparator.comparingDouble(r -> seconds[r]));
+            int median = order[REPEATS / 2];
+
+            if (baseline == 0) {
+
+                baseline = seconds[median];
+            }
+
+            long publishes = algorithms[median].getPublishCount();
+            long failures = algorithms[median].getContentionCount();
+
+            System.out.printf("%-8d %-10.3f %-14.0f %-8.2f %-12d %-12d %-10.4f%n", threads, seconds[median],
+                    (double) populationSize * iterations / seconds[median], baseline / seconds[median], publishes,
+                    failures, publishes == 0 ? 0d : (double) failures / publishes);
+        }
+    }
+
+    private static BatAlgorithm create(FunctionDefinition fd, int populationSize, int dimension, int iterations) {
+
+        BatAlgorithm algorithm = new BatAlgorithm(iterations, 2, 0.1, fd,
+                new ArrayPopulationStorage(populationSize, dimension));
+        algorithm.setVerbose(false);
+
+        return algorithm;
+    }
+}
@@ -7,12 +7,20 @@ public class FunctionDefinition {
     private String name;
     private Function<Double[], Double> function;
     private ValueRange range;
+    private IncrementalObjective incremental;
 
     public FunctionDefinition(String name, Function<Double[], Double> function, ValueRange range) {
 
+        this(name, function, range, null);
+    }
+
+    public FunctionDefinition(String name, Function<Double[], Double> function, ValueRange range,
+                              IncrementalObjective incremental) {
+
         this.name = name;
         this.function = function;
         this.range = range;
+        this.incremental = incremental;
     }
 
     public String getName() {
@@ -29,4 +37,17 @@ public class FunctionDefinition {
 
         return range;
     }
+
+    /**
+     * Term-wise form of the function, or {@code null} if it cannot be updated incrementally.
+     */
+    public IncrementalObjective getIncremental() {
+
+        return incremental;
+    }
+
+    public boolean isIncremental() {
+
+        return incremental != null;
+    }
 }
@@ -0,0 +1,72 @@
+package optimization.bat;
+
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Objective written as {@code constant(D) + term(x, 0) + ... + term(x, D - 1)}, where term {@code i} reads only
+ * coordinates {@code i} to {@code i + coupling}.
+ * <p>
+ * Caching the terms of a solution lets the fitness be updated in O(k) when k coordinates change, instead of
+ * re-evaluating all D of them. Updates are applied as deltas, so the cached fitness can drift from a full
+ * evaluation by rounding error.
+ */
+public class IncrementalObjective {
+
+    @FunctionalInterface
+    public interface Term {
+
+        double apply(IntToDoubleFunction x, int i, int dimension);
+    }
+
+    private final Term term;
+    private final int coupling;
+    private final IntToDoubleFunction constant;
+
+    public IncrementalObjective(Term term, int coupling, IntToDoubleFunction constant) {
+
+        this.term = term;
+        this.coupling = coupling;
+        this.constant = constant;
+    }
+
+    public IncrementalObjective(Term term, int coupling) {
+
+        this(term, coupling, (dimension) -> 0d);
+    }
+
+    public double term(IntToDoubleFunction x, int i, int dimension) {
+
+        return term.apply(x, i, dimension);
+    }
+
+    /**
+     * Evaluates every term of {@code x} into {@code terms[from .. from + dimension)}.
+     *
+     * @return the full objective value
+     */
+    public double evaluate(IntToDoubleFunction x, int dimension, double[] terms, int from) {
+
+        double total = constant.applyAsDouble(dimension);
+
+        for (int i = 0; i < dimension; i++) {
+
+            terms[from + i] = term.apply(x, i, dimension);
+            total += terms[from + i];
+        }
+
+        return total;
+    }
+
+    /**
+     * First term that reads {@code coordinate}; the last one is the term at {@code coordinate} itself.
+     */
+    public int firstAffectedTerm(int coordinate) {
+
+        return Math.max(0, coordinate - coupling);
+    }
+
+    public int getCoupling() {
+
+        return coupling;
+    }
+}
@@ -0,0 +1,267 @@
+package optimization.bat;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Off-heap {@link PopulationStorage} backed by direct or memory-mapped buffers.
+ * <p>
+ * Every matrix lives outside the Java heap in fixed-size chunks, so the heap footprint and GC work do not grow
+ * with the population. When a file is given the whole population is mapped from it, which lets the operating
+ * system page large populations in and out. Direct allocations count against {@code -XX:MaxDirectMemorySize},
+ * which defaults to the maximum heap size.
+ */
+public class OffHeapPopulationStorage implements PopulationStorage {
+
+    // 2^27 doubles (1 GiB) per chunk keeps every chunk inside the int-indexed ByteBuffer limit
+    private static final int CHUNK_SHIFT = 27;
+    private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+    private final int populationSize;
+    private final int dimension;
+    private final FileChannel channel;
+    private long mappedBytes;
+
+    private final DoubleBuffer[] positions;
+    private final DoubleBuffer[] velocities;
+    private final DoubleBuffer[] candidates;
+    private final DoubleBuffer[] frequency;
+    private final DoubleBuffer[] fitness;
+    private final DoubleBuffer[] loudness;
+    private final DoubleBuffer[] pulseRate;
+
+    /**
+     * Allocates the population in direct memory.
+     */
+    public OffHeapPopulationStorage(int populationSize, int dimension) {
+
+        this(populationSize, dimension, (FileChannel) null);
+    }
+
+    /**
+     * Maps the population from {@code file}, creating or growing it as needed. The previous contents are
+     * overwritten by {@link BatAlgorithm} during initialization.
+     *
+     * @throws UncheckedIOException if the file cannot be opened or mapped
+     */
+    public OffHeapPopulationStorage(int populationSize, int dimension, Path file) {
+
+        this(populationSize, dimension, open(file));
+    }
+
+    private OffHeapPopulationStorage(int populationSize, int dimension, FileChannel channel) {
+
+        this.populationSize = populationSize;
+        this.dimension = dimension;
+        this.channel = channel;
+
+        try {
+
+            this.positions = allocate((long) populationSize * dimension);
+            this.velocities = allocate((long) populationSize * dimension);
+            this.candidates = allocate((long) populationSize * dimension);
+            this.frequency = allocate(populationSize);
+            this.fitness = allocate(populationSize);
+            this.loudness = allocate(populationSize);
+            this.pulseRate = allocate(populationSize);
+
+        } catch (UncheckedIOException e) {
+
+            try {
+
+                channel.close();
+
+            } catch (IOException suppressed) {
+
+                e.addSuppressed(suppressed);
+            }
+
+            throw e;
+        }
+    }
+
+    private static FileChannel open(Path file) {
+
+        try {
+
+            return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+
+        } catch (IOException e) {
+
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private DoubleBuffer[] allocate(long count) {
+
+        int chunkCount = (int) ((count + CHUNK_MASK) >>> CHUNK_SHIFT);
+        DoubleBuffer[] chunks = new DoubleBuffer[Math.max(chunkCount, 1)];
+
+        for (int c = 0; c < chunks.length; c++) {
+
+            long elements = Math.min(count - ((long) c << CHUNK_SHIFT), 1L << CHUNK_SHIFT);
+            long bytes = Math.max(elements, 0) * Double.BYTES;
+            ByteBuffer buffer = channel == null ? ByteBuffer.allocateDirect((int) bytes) : map(bytes);
+
+            chunks[c] = buffer.order(ByteOrder.nativeOrder()).asDoubleBuffer();
+        }
+
+        return chunks;
+    }
+
+    // only reached on the mapped path, direct allocation cannot fail with an I/O error
+    private ByteBuffer map(long bytes) {
+
+        try {
+
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, mappedBytes, bytes);
+            mappedBytes += bytes;
+
+            return buffer;
+
+        } catch (IOException e) {
+
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static double get(DoubleBuffer[] chunks, long index) {
+
+        return chunks[(int) (index >>> CHUNK_SHIFT)].get((int) (index & CHUNK_MASK));
+    }
+
+    private static void put(DoubleBuffer[] chunks, long index, double value) {
+
+        chunks[(int) (index >>> CHUNK_SHIFT)].put((int) (index & CHUNK_MASK), value);
+    }
+
+    private long cell(int bat, int d) {
+
+        return (long) bat * dimension + d;
+    }
+
+    @Override
+    public int getPopulationSize() {
+
+        return populationSize;
+    }
+
+    @Override
+    public int getDimension() {
+
+        return dimension;
+    }
+
+    @Override
+    public double getPosition(int bat, int d) {
+
+        return get(positions, cell(bat, d));
+    }
+
+    @Override
+    public void setPosition(int bat, int d, double value) {
+
+        put(positions, cell(bat, d), value);
+    }
+
+    @Override
+    public double getVelocity(int bat, int d) {
+
+        return get(velocities, cell(bat, d));
+    }
+
+    @Override
+    public void setVelocity(int bat, int d, double value) {
+
+        put(velocities, cell(bat, d), value);
+    }
+
+    @Override
+    public double getCandidate(int bat, int d) {
+
+        return get(candidates, cell(bat, d));
+    }
+
+    @Override
+    public void setCandidate(int bat, int d, double value) {
+
+        put(candidates, cell(bat, d), value);
+    }
+
+    @Override
+    public double getFrequency(int bat) {
+
+        return get(frequency, bat);
+    }
+
+    @Override
+    public void setFrequency(int bat, double value) {
+
+        put(frequency, bat, value);
+    }
+
+    @Override
+    public double getFitness(int bat) {
+
+        return get(fitness, bat);
+    }
+
+    @Override
+    public void setFitness(int bat, double value) {
+
+        put(fitness, bat, value);
+    }
+
+    @Override
+    public double getLoudness(int bat) {
+
+        return get(loudness, bat);
+    }
+
+    @Override
+    public void setLoudness(int bat, double value) {
+
+        put(loudness, bat, value);
+    }
+
+    @Override
+    public double getPulseRate(int bat) {
+
+        return get(pulseRate, bat);
+    }
+
+    @Override
+    public void setPulseRate(int bat, double value) {
+
+        put(pulseRate, bat, value);
+    }
+
+    /**
+     * Closes the backing file, if any, throwing {@link UncheckedIOException} if that fails. Direct buffers are released by the garbage collector once the storage
+     * is no longer referenced.
+     */
+    @Override
+    public void close() {
+
+        if (channel == null) {
+
+            return;
+        }
+
+        try {
+
+            channel.close();
+
+        } catch (IOException e) {
+
+            throw new UncheckedIOException(e);
+        }
+    }
+}
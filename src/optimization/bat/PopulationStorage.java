@@ -0,0 +1,117 @@
+package optimization.bat;
+
+import java.util.stream.IntStream;
+
+/**
+ * Flat storage for the per-bat state of {@link BatAlgorithm}.
+ * <p>
+ * Positions, velocities and candidate solutions are addressed as (bat, dimension) cells instead of
+ * one array object per bat, so implementations are free to keep them in a single block of memory.
+ */
+public interface PopulationStorage extends AutoCloseable {
+
+    // below this many bats a fork/join reduction costs more than it saves
+    int PARALLEL_THRESHOLD = 4096;
+
+    int getPopulationSize();
+
+    int getDimension();
+
+    double getPosition(int bat, int d);
+
+    void setPosition(int bat, int d, double value);
+
+    double getVelocity(int bat, int d);
+
+    void setVelocity(int bat, int d, double value);
+
+    double getCandidate(int bat, int d);
+
+    void setCandidate(int bat, int d, double value);
+
+    double getFrequency(int bat);
+
+    void setFrequency(int bat, double value);
+
+    double getFitness(int bat);
+
+    void setFitness(int bat, double value);
+
+    double getLoudness(int bat);
+
+    void setLoudness(int bat, double value);
+
+    double getPulseRate(int bat);
+
+    void setPulseRate(int bat, double value);
+
+    default void acceptCandidate(int bat) {
+
+        for (int d = 0; d < getDimension(); d++) {
+
+            setPosition(bat, d, getCandidate(bat, d));
+        }
+    }
+
+    default void copyPosition(int bat, double[] target) {
+
+        for (int d = 0; d < getDimension(); d++) {
+
+            target[d] = getPosition(bat, d);
+        }
+    }
+
+    /**
+     * Index of the bat with the lowest fitness. Ties go to the lower index. Populations of at least
+     * {@link #PARALLEL_THRESHOLD} bats are reduced in parallel.
+     */
+    default int bestIndex() {
+
+        if (getPopulationSize() < PARALLEL_THRESHOLD) {
+
+            int best = 0;
+
+            for (int i = 1; i < getPopulationSize(); i++) {
+
+                if (getFitness(i) < getFitness(best)) {
+
+                    best = i;
+                }
+            }
+
+            return best;
+        }
+
+        return IntStream.range(0, getPopulationSize()).parallel()
+                .reduce((a, b) -> getFitness(b) < getFitness(a) ? b : a)
+                .orElse(0);
+    }
+
+    /**
+     * Sum of the loudness of every bat. Populations of at least {@link #PARALLEL_THRESHOLD} bats are reduced in
+     * parallel.
+     */
+    default double totalLoudness() {
+
+        if (getPopulationSize() < PARALLEL_THRESHOLD) {
+
+            double total = 0d;
+
+            for (int i = 0; i < getPopulationSize(); i++) {
+
+                total += getLoudness(i);
+            }
+
+            return total;
+        }
+
+        return IntStream.range(0, getPopulationSize()).parallel()
+                .mapToDouble(this::getLoudness)
+                .sum();
+    }
+
+    @Override
+    default void close() {
+
+    }
+}
@@ -0,0 +1,146 @@
+package optimization.bat;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Small, dependency-free statistics used by {@link RegressionSuite}.
+ */
+final class RegressionStatistics {
+
+    private RegressionStatistics() {
+
+    }
+
+    static double median(double[] values) {
+
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int middle = sorted.length / 2;
+
+        return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+
+    /**
+     * One-sided Mann-Whitney U test with tie and continuity correction (normal approximation).
+     *
+     * @return p-value for the hypothesis that values in {@code current} tend to be larger than in {@code baseline}
+     */
+    static double mannWhitneyGreater(double[] current, double[] baseline) {
+
+        int n1 = current.length;
+        int n2 = baseline.length;
+        int n = n1 + n2;
+
+        double[] pooled = new double[n];
+        System.arraycopy(current, 0, pooled, 0, n1);
+        System.arraycopy(baseline, 0, pooled, n1, n2);
+
+        Integer[] order = new Integer[n];
+
+        for (int i = 0; i < n; i++) {
+
+            order[i] = i;
+        }
+
+        Arrays.sort(order, (a, b) -> Double.compare(pooled[a], pooled[b]));
+
+        // average ranks over ties and collect the tie correction term
+        double[] ranks = new double[n];
+        double tieTotal = 0d;
+
+        for (int i = 0; i < n; ) {
+
+            int j = i;
+
+            while (j + 1 < n && Double.compare(pooled[order[j + 1]], pooled[order[i]]) == 0) {
+
+                j++;
+            }
+
+            double rank = (i + j) / 2d + 1;
+
+            for (int k = i; k <= j; k++) {
+
+                ranks[order[k]] = rank;
+            }
+
+            double tied = j - i + 1;
+            tieTotal += tied * tied * tied - tied;
+            i = j + 1;
+        }
+
+        double rankSum = 0d;
+
+        for (int i = 0; i < n1; i++) {
+
+            rankSum += ranks[i];
+        }
+
+        double u = rankSum - n1 * (n1 + 1) / 2d;
+        double mean = n1 * n2 / 2d;
+        double variance = n1 * n2 / 12d * ((n + 1) - tieTotal / ((double) n * (n - 1)));
+
+        if (variance <= 0) {
+
+            return 1d;
+        }
+
+        double z = (u - mean - 0.5) / Math.sqrt(variance);
+
+        return 1 - normalCdf(z);
+    }
+
+    /**
+     * Percentile bootstrap confidence interval for {@code median(current) / median(baseline)}.
+     *
+     * @return {lower, upper}
+     */
+    static double[] bootstrapMedianRatio(double[] current, double[] baseline, double confidence, int resamples,
+                                         long seed) {
+
+        Random random = new Random(seed);
+        double[] ratios = new double[resamples];
+        double[] a = new double[current.length];
+        double[] b = new double[baseline.length];
+
+        for (int r = 0; r < resamples; r++) {
+
+            for (int i = 0; i < a.length; i++) {
+
+                a[i] = current[random.nextInt(current.length)];
+            }
+
+            for (int i = 0; i < b.length; i++) {
+
+                b[i] = baseline[random.nextInt(baseline.length)];
+            }
+
+            ratios[r] = median(a) / median(b);
+        }
+
+        Arrays.sort(ratios);
+        double tail = (1 - confidence) / 2;
+
+        return new double[]{ratios[(int) Math.floor(tail * (resamples - 1))],
+                ratios[(int) Math.ceil((1 - tail) * (resamples - 1))]};
+    }
+
+    static double normalCdf(double z) {
+
+        return 0.5 * (1 + erf(z / Math.sqrt(2)));
+    }
+
+    // Abramowitz and Stegun 7.1.26, absolute error below 1.5e-7
+    private static double erf(double x) {
+
+        double sign = Math.signum(x);
+        x = Math.abs(x);
+
+        double t = 1 / (1 + 0.3275911 * x);
+        double y = 1 - (((((1.061405429 * t - 1.453152027) * t) + 1.421413741) * t - 0.284496736) * t
+                + 0.254829592) * t * Math.exp(-x * x);
+
+        return sign * y;
+    }
+}
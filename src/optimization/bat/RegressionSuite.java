@@ -0,0 +1,424 @@
+package optimization.bat;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.stream.Collectors;
+
+/**
+ * End-to-end regression gate for {@link BatAlgorithm}.
+ * <p>
+ * Runs a fixed, seeded set of problems from {@link BenchmarkFunctions#FUNCTION_LIST} at several dimensions and
+ * population sizes, and records wall time, evaluations per second, allocated bytes and final fitness of every
+ * run. {@code record} stores them as the baseline; {@code check} compares a fresh measurement against it:
+ * <ul>
+ *     <li>quality regresses when a one-sided Mann-Whitney U test says final fitness got worse, at a
+ *     Bonferroni-corrected significance level;</li>
+ *     <li>speed regresses when the whole bootstrap confidence interval of the median time ratio lies above the
+ *     time tolerance, either for a single case or for the total suite time (all cases of one run index
+ *     summed).</li>
+ * </ul>
+ * Timings are only comparable on the machine that recorded the baseline. {@code record} measures the suite twice
+ * and stores a time tolerance of at least {@value #DEFAULT_TIME_TOLERANCE} that also covers twice the drift seen
+ * between those passes; {@code -Dbat.regression.timeTolerance} overrides it.
+ * <p>
+ * Usage: {@code RegressionSuite record|check [baselineFile]}. Exit code is 0 on success, 1 on a regression and
+ * 2 on a usage or baseline error.
+ */
+public class RegressionSuite {
+
+    // ACKLEY is left out: its (1 / arr.length) is integer division, so it is constant and can never regress
+    private static final String[] FUNCTIONS = new String[]{"SPHERE", "ROSENBROCK", "RASTRIGIN", "GRIEWANK",
+            "SCHWEFEL_2_26"};
+    private static final int[] DIMENSIONS = new int[]{2, 10, 30};
+    private static final int[] POPULATION_SIZES = new int[]{20, 50};
+    private static final int ITERATIONS = 1000; // long enough for every case to be timed on its own
+    private static final int RUNS = 15;
+    private static final double LOUDNESS_INITIAL = 2;
+    private static final double PULSE_RATE_INITIAL = 0.1;
+
+    private static final double QUALITY_SIGNIFICANCE = 0.05; // family-wise, split over all cases
+    // Slowdown accepted before the gate fails. Separate JVM runs of unchanged code on a shared single-core box
+    // drifted by up to ~37%, so the tolerance never goes below 1.5, and noisier hosts get a wider one at record time.
+    private static final double DEFAULT_TIME_TOLERANCE = 1.5;
+    private static final String TIME_TOLERANCE_PROPERTY = "bat.regression.timeTolerance";
+    private static final String TIME_TOLERANCE_KEY = "timeTolerance";
+    private static final double TIME_CONFIDENCE = 0.99;
+    private static final int BOOTSTRAP_RESAMPLES = 2000;
+
+    private static final Path DEFAULT_BASELINE = Paths.get("./benchmarks/baseline.properties");
+
+    public static void main(String[] args) {
+
+        if (args.length < 1 || !(args[0].equals("record") || args[0].equals("check"))) {
+
+            System.err.println("Usage: RegressionSuite record|check [baselineFile]");
+            System.exit(2);
+        }
+
+        Path baselineFile = args.length > 1 ? Paths.get(args[1]) : DEFAULT_BASELINE;
+        double timeTolerance = Double.NaN;
+
+        if (System.getProperty(TIME_TOLERANCE_PROPERTY) != null) {
+
+            try {
+
+                timeTolerance = parseTolerance(System.getProperty(TIME_TOLERANCE_PROPERTY));
+
+            } catch (IllegalStateException e) {
+
+                System.err.println("Invalid " + TIME_TOLERANCE_PROPERTY + ": " + e.getMessage());
+                System.exit(2);
+            }
+        }
+
+        try {
+
+            if (args[0].equals("record")) {
+
+                record(baselineFile);
+
+            } else {
+
+                System.exit(check(baselineFile, timeTolerance) ? 0 : 1);
+            }
+
+        } catch (IOException | IllegalStateException e) {
+
+            System.err.println("Baseline error: " + e.getMessage());
+            System.exit(2);
+        }
+    }
+
+    private static void record(Path baselineFile) throws IOException {
+
+        List<List<Measurement>> passes = measureAll(2);
+        List<Measurement> measurements = passes.get(0);
+        List<Measurement> noise = passes.get(1);
+
+        // the largest drift between two passes of unchanged code is this host's own timing noise
+        double drift = 1d;
+
+        for (int c = 0; c < measurements.size(); c++) {
+
+            double ratio = RegressionStatistics.median(noise.get(c).nanos) /
+                    RegressionStatistics.median(measurements.get(c).nanos);
+            drift = Math.max(drift, Math.max(ratio, 1 / ratio));
+        }
+
+        double timeTolerance = Math.max(DEFAULT_TIME_TOLERANCE, 1 + 2 * (drift - 1));
+
+        Properties properties = new Properties();
+        properties.setProperty("suite", suiteSignature());
+        properties.setProperty(TIME_TOLERANCE_KEY, Double.toString(timeTolerance));
+
+        for (Measurement m : measurements) {
+
+            properties.setProperty(m.name + ".time", join(m.nanos));
+            properties.setProperty(m.name + ".allocated", join(m.allocatedBytes));
+            properties.setProperty(m.name + ".fitness", join(m.fitness));
+        }
+
+        if (baselineFile.getParent() != null) {
+
+            Files.createDirectories(baselineFile.getParent());
+        }
+
+        try (Writer writer = Files.newBufferedWriter(baselineFile)) {
+
+            properties.store(writer, "BatAlgorithm regression baseline");
+        }
+
+        System.out.printf(Locale.ROOT, "Baseline written to %s (largest drift between passes %.3f, time tolerance %.2f)%n",
+                baselineFile, drift, timeTolerance);
+    }
+
+    /**
+     * @param timeTolerance largest accepted time ratio, or NaN to use the one stored in the baseline
+     */
+    private static boolean check(Path baselineFile, double timeTolerance) throws IOException {
+
+        if (!Files.exists(baselineFile)) {
+
+            throw new IllegalStateException(baselineFile + " does not exist, run 'record' first");
+        }
+
+        Properties baseline = new Properties();
+
+        try (Reader reader = Files.newBufferedReader(baselineFile)) {
+
+            baseline.load(reader);
+
+        } catch (IllegalArgumentException e) {
+
+            throw new IllegalStateException("baseline is not a valid properties file: " + e.getMessage());
+        }
+
+        if (!suiteSignature().equals(baseline.getProperty("suite"))) {
+
+            throw new IllegalStateException("baseline was recorded with a different suite configuration");
+        }
+
+        if (Double.isNaN(timeTolerance)) {
+
+            timeTolerance = parseTolerance(baseline.getProperty(TIME_TOLERANCE_KEY, Double.toString(
+                    DEFAULT_TIME_TOLERANCE)));
+        }
+
+        // validate the whole baseline before spending time on measurements
+        Map<String, double[]> baselineValues = new HashMap<>();
+
+        for (String name : caseNames()) {
+
+            for (String key : new String[]{name + ".time", name + ".allocated", name + ".fitness"}) {
+
+                baselineValues.put(key, parse(baseline, key));
+            }
+        }
+
+        List<Measurement> measurements = measureAll(1).get(0);
+        double alpha = QUALITY_SIGNIFICANCE / measurements.size();
+        boolean passed = true;
+        double[] totalTime = new double[RUNS];
+        double[] totalBaseTime = new double[RUNS];
+
+        System.out.printf(Locale.ROOT, "%-28s %12s %17s %12s %12s %12s %9s  %s%n", "CASE", "EVALS/SEC",
+                "TIME_RATIO_CI", "ALLOC_RATIO", "FIT_BASE", "FIT_NOW", "P", "STATUS");
+
+        for (Measurement m : measurements) {
+
+            double[] baseTime = baselineValues.get(m.name + ".time");
+            double[] baseAllocated = baselineValues.get(m.name + ".allocated");
+            double[] baseFitness = baselineValues.get(m.name + ".fitness");
+
+            double[] timeRatio = RegressionStatistics.bootstrapMedianRatio(m.nanos, baseTime, TIME_CONFIDENCE,
+                    BOOTSTRAP_RESAMPLES, m.name.hashCode());
+            double allocatedRatio = RegressionStatistics.median(m.allocatedBytes) /
+                    Math.max(1d, RegressionStatistics.median(baseAllocated));
+            double p = RegressionStatistics.mannWhitneyGreater(m.fitness, baseFitness);
+
+            boolean worse = p < alpha;
+            boolean slower = timeRatio[0] > timeTolerance;
+            String status = slower && worse ? "SLOWER+WORSE" : slower ? "SLOWER" : worse ? "WORSE" : "ok";
+
+            passed &= !slower && !worse;
+
+            for (int run = 0; run < RUNS; run++) {
+
+                totalTime[run] += m.nanos[run];
+                totalBaseTime[run] += baseTime[run];
+            }
+
+            System.out.printf(Locale.ROOT, "%-28s %12.0f %8.3f-%-8.3f %12.3f %12.4g %12.4g %9.2g  %s%n",
+                    m.name, m.evaluationsPerSecond(), timeRatio[0], timeRatio[1], allocatedRatio,
+                    RegressionStatistics.median(baseFitness), RegressionStatistics.median(m.fitness), p, status);
+        }
+
+        double[] totalRatio = RegressionStatistics.bootstrapMedianRatio(totalTime, totalBaseTime, TIME_CONFIDENCE,
+                BOOTSTRAP_RESAMPLES, 0);
+        boolean slower = totalRatio[0] > timeTolerance;
+
+        passed &= !slower;
+
+        System.out.printf(Locale.ROOT, "%nTOTAL TIME RATIO CI %.3f-%.3f (tolerance %.2f)%s%n", totalRatio[0],
+                totalRatio[1], timeTolerance, slower ? "  SLOWER" : "");
+        System.out.println(passed ? "PASSED" : "REGRESSION DETECTED");
+
+        return passed;
+    }
+
+    /**
+     * Measures the suite {@code passes} times after a discarded warm-up pass.
+     */
+    private static List<List<Measurement>> measureAll(int passes) {
+
+        com.sun.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean()
+                instanceof com.sun.management.ThreadMXBean ?
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean() : null;
+
+        // a discarded first pass warms up the JIT for every case
+        measurePass(threads);
+
+        List<List<Measurement>> result = new ArrayList<>();
+
+        for (int i = 0; i < passes; i++) {
+
+            result.add(measurePass(threads));
+        }
+
+        return result;
+    }
+
+    private static List<Measurement> measurePass(com.sun.management.ThreadMXBean threads) {
+
+        List<Measurement> measurements = new ArrayList<>();
+        long seed = 0;
+
+        for (String name : FUNCTIONS) {
+
+            FunctionDefinition fd = definition(name);
+
+            for (int dimension : DIMENSIONS) {
+
+                for (int populationSize : POPULATION_SIZES) {
+
+                    Measurement m = new Measurement(caseName(name, dimension, populationSize),
+                            (long) populationSize * (ITERATIONS + 1));
+
+                    for (int run = 0; run < RUNS; run++) {
+
+                        long allocatedBefore = allocatedBytes(threads);
+                        long start = System.nanoTime();
+
+                        m.fitness[run] = runOnce(fd, dimension, populationSize, seed++);
+
+                        m.nanos[run] = System.nanoTime() - start;
+                        m.allocatedBytes[run] = allocatedBytes(threads) - allocatedBefore;
+                    }
+
+                    measurements.add(m);
+                }
+            }
+        }
+
+        return measurements;
+    }
+
+    private static double runOnce(FunctionDefinition fd, int dimension, int populationSize, long seed) {
+
+        BatAlgorithm algorithm = new BatAlgorithm(ITERATIONS, LOUDNESS_INITIAL, PULSE_RATE_INITIAL, fd,
+                new ArrayPopulationStorage(populationSize, dimension), seed);
+        algorithm.setVerbose(false);
+        algorithm.runAlgorithm();
+
+        return algorithm.getFitnessMin();
+    }
+
+    private static long allocatedBytes(com.sun.management.ThreadMXBean threads) {
+
+        return threads == null ? 0 : threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static FunctionDefinition definition(String name) {
+
+        return BenchmarkFunctions.FUNCTION_LIST.stream()
+                .filter(f -> f.getName().equals(name))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static double parseTolerance(String value) {
+
+        double tolerance;
+
+        try {
+
+            tolerance = Double.parseDouble(value);
+
+        } catch (NumberFormatException e) {
+
+            throw new IllegalStateException("malformed time tolerance: " + e.getMessage());
+        }
+
+        if (!(tolerance >= 1)) {
+
+            throw new IllegalStateException("time tolerance must be at least 1: " + value);
+        }
+
+        return tolerance;
+    }
+
+    private static String caseName(String function, int dimension, int populationSize) {
+
+        return function + ".d" + dimension + ".n" + populationSize;
+    }
+
+    private static List<String> caseNames() {
+
+        List<String> names = new ArrayList<>();
+
+        for (String name : FUNCTIONS) {
+
+            for (int dimension : DIMENSIONS) {
+
+                for (int populationSize : POPULATION_SIZES) {
+
+                    names.add(caseName(name, dimension, populationSize));
+                }
+            }
+        }
+
+        return names;
+    }
+
+    private static String suiteSignature() {
+
+        return String.join(",", FUNCTIONS) + ";" + Arrays.toString(DIMENSIONS) + ";" +
+                Arrays.toString(POPULATION_SIZES) + ";" + ITERATIONS + ";" + RUNS;
+    }
+
+    private static String join(double[] values) {
+
+        return Arrays.stream(values).mapToObj(Double::toString).collect(Collectors.joining(","));
+    }
+
+    private static double[] parse(Properties properties, String key) {
+
+        String value = properties.getProperty(key);
+
+        if (value == null) {
+
+            throw new IllegalStateException("baseline is missing " + key);
+        }
+
+        double[] values;
+
+        try {
+
+            values = Arrays.stream(value.split(",")).mapToDouble(Double::parseDouble).toArray();
+
+        } catch (NumberFormatException e) {
+
+            throw new IllegalStateException("baseline has a malformed value in " + key + ": " + e.getMessage());
+        }
+
+        if (values.length != RUNS) {
+
+            throw new IllegalStateException("baseline has " + values.length + " values for " + key + ", expected " +
+                    RUNS);
+        }
+
+        return values;
+    }
+
+    private static final class Measurement {
+
+        private final String name;
+        private final long evaluations;
+        private final double[] nanos = new double[RUNS];
+        private final double[] allocatedBytes = new double[RUNS];
+        private final double[] fitness = new double[RUNS];
+
+        private Measurement(String name, long evaluations) {
+
+            this.name = name;
+            this.evaluations = evaluations;
+        }
+
+        private double evaluationsPerSecond() {
+
+            return evaluations / (RegressionStatistics.median(nanos) / 1e9);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package optimization.bat;
+
+/**
+ * Compares {@link BatAlgorithm#runAlgorithm()} with {@link BatAlgorithm#runSparseAlgorithm(int)} at high
+ * dimensions, and checks for every incremental function that the incrementally maintained fitness of every bat
+ * still matches a full evaluation. Exits with 1 if any function drifts.
+ * <p>
+ * Usage: {@code SparseBenchmark [coordinatesPerMove] [populationSize] [iterations]}
+ */
+public class SparseBenchmark {
+
+    private static final int[] DIMENSIONS = new int[]{1_000, 10_000, 50_000};
+    private static final int[] CHECK_DIMENSIONS = new int[]{30, 50, 1_000};
+    private static final int CHECK_POPULATION_SIZE = 20;
+    private static final int CHECK_ITERATIONS = 200;
+    private static final double MAX_RELATIVE_ERROR = 1e-9;
+
+    public static void main(String[] args) {
+
+        int k = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int populationSize = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+
+        FunctionDefinition fd = BenchmarkFunctions.FUNCTION_LIST.stream()
+                .filter(f -> f.getName().equals("RASTRIGIN"))
+                .findFirst()
+                .orElseThrow();
+
+        // warm up the JIT before timing anything
+        run(fd, populationSize, 1_000, iterations, 0);
+        run(fd, populationSize, 1_000, iterations, k);
+
+        System.out.printf("%n%-10s %-12s %-14s %-12s %-14s %-10s %-12s%n", "DIMENSION", "FULL_SEC", "FULL_US/MOVE",
+                "SPARSE_SEC", "SPARSE_US/MOVE", "SPEEDUP", "MAX_REL_ERR");
+
+        for (int dimension : DIMENSIONS) {
+
+            double full = run(fd, populationSize, dimension, iterations, 0)[0];
+            double[] sparse = run(fd, populationSize, dimension, iterations, k);
+            double moves = (double) populationSize * iterations;
+
+            System.out.printf("%-10d %-12.3f %-14.2f %-12.3f %-14.2f %-10.1f %-12.2e%n", dimension, full,
+                    full / moves * 1e6, sparse[0], sparse[0] / moves * 1e6, full / sparse[0], sparse[1]);
+        }
+
+        // every incremental function must keep its cached fitness in line with a full evaluation
+        System.out.printf("%n%-16s %-10s %-12s %s%n", "FUNCTION", "DIMENSION", "MAX_REL_ERR", "STATUS");
+
+        boolean consistent = true;
+
+        for (FunctionDefinition incremental : BenchmarkFunctions.FUNCTION_LIST) {
+
+            if (!incremental.isIncremental()) {
+
+                continue;
+            }
+
+            for (int dimension : CHECK_DIMENSIONS) {
+
+                double error = run(incremental, CHECK_POPULATION_SIZE, dimension, CHECK_ITERATIONS, k)[1];
+                boolean ok = error <= MAX_RELATIVE_ERROR;
+
+                consistent &= ok;
+
+                System.out.printf("%-16s %-10d %-12.2e %s%n", incremental.getName(), dimension, error,
+                        ok ? "ok" : "DRIFT");
+            }
+        }
+
+        if (!consistent) {
+
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs one full ({@code k == 0}) or sparse search and times only the run, not the construction.
+     *
+     * @return {seconds, largest relative difference between cached and fully evaluated fitness}
+     */
+    private static double[] run(FunctionDefinition fd, int populationSize, int dimension, int iterations, int k) {
+
+        ArrayPopulationStorage storage = new ArrayPopulationStorage(populationSize, dimension);
+        BatAlgorithm algorithm = new BatAlgorithm(iterations, 2, 0.1, fd, storage);
+        algorithm.setVerbose(false);
+
+        long start = System.nanoTime();
+
+        if (k == 0) {
+
+            algorithm.runAlgorithm();
+
+        } else {
+
+            algorithm.runSparseAlgorithm(k);
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        double maxError = 0d;
+        Double[] xValues = new Double[dimension];
+
+        for (int i = 0; i < populationSize; i++) {
+
+            for (int j = 0; j < dimension; j++) {
+
+                xValues[j] = storage.getPosition(i, j);
+            }
+
+            double exact = fd.getFunction().apply(xValues);
+            maxError = Math.max(maxError, Math.abs(storage.getFitness(i) - exact) / Math.max(1d, Math.abs(exact)));
+        }
+
+        return new double[]{seconds, maxError};
+    }
+}